@@ -0,0 +1,145 @@
+package com.example.mcpserver.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compile les prompts envoyés au modèle par {@link TaskAiService}
+ * Compte les tokens localement et réduit le titre et la description au budget configuré
+ */
+@Component
+@Slf4j
+public class PromptCompiler {
+
+    static final String TRUNCATION_MARKER = " [...]";
+
+    /**
+     * Instructions communes à toutes les opérations, envoyées à l'identique en message système
+     */
+    static final String SHARED_INSTRUCTIONS = "Answer in the requested format only, without explanation.";
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    private final int maxTitleTokens;
+    private final int maxDescriptionTokens;
+
+    /**
+     * Les budgets doivent laisser la place au marqueur de troncature et à au moins un token de contenu
+     *
+     * @throws IllegalArgumentException si un budget est trop petit
+     */
+    public PromptCompiler(@Value("${mcp.ai.prompt.max-title-tokens:32}") int maxTitleTokens,
+                          @Value("${mcp.ai.prompt.max-description-tokens:128}") int maxDescriptionTokens) {
+        this.maxTitleTokens = requireValidBudget("max-title-tokens", maxTitleTokens);
+        this.maxDescriptionTokens = requireValidBudget("max-description-tokens", maxDescriptionTokens);
+    }
+
+    /**
+     * Construit le prompt d'une opération à partir du titre, de la description et de l'instruction
+     * La ligne de titre est omise quand le titre est absent
+     */
+    public CompiledPrompt compile(String operation, String instruction,
+                                  String title, String description, String... extraLines) {
+        StringBuilder user = new StringBuilder();
+        boolean truncated = false;
+
+        if (title != null && !title.isBlank()) {
+            Fitted fittedTitle = fit(title, maxTitleTokens);
+            user.append("Task title: ").append(fittedTitle.text()).append('\n');
+            truncated = logIfTruncated(operation, "title", fittedTitle);
+        }
+        Fitted fittedDescription = fit(description, maxDescriptionTokens);
+        user.append("Task description: ").append(fittedDescription.text()).append('\n');
+        truncated |= logIfTruncated(operation, "description", fittedDescription);
+
+        for (String line : extraLines) {
+            user.append(line).append('\n');
+        }
+        user.append('\n').append(instruction.strip());
+
+        String userText = user.toString();
+        int estimatedTokens = countTokens(SHARED_INSTRUCTIONS) + countTokens(userText);
+        return new CompiledPrompt(operation, SHARED_INSTRUCTIONS, userText, estimatedTokens, truncated);
+    }
+
+    /**
+     * Compte les tokens d'un texte avec le tokenizer local (cl100k_base)
+     */
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return tokenCountEstimator.estimate(text);
+    }
+
+    /**
+     * Tronque un texte pour qu'il tienne dans le budget de tokens donné, marqueur de troncature compris
+     *
+     * @throws IllegalArgumentException si le budget ne laisse pas de place au contenu
+     */
+    public String fitToBudget(String text, int maxTokens) {
+        return fit(text, requireValidBudget("maxTokens", maxTokens)).text();
+    }
+
+    private Fitted fit(String text, int maxTokens) {
+        String value = text != null ? text.strip() : "";
+        int originalTokens = countTokens(value);
+        if (originalTokens <= maxTokens) {
+            return new Fitted(value, false, originalTokens, originalTokens);
+        }
+
+        int budget = maxTokens - countTokens(TRUNCATION_MARKER);
+        // Recherche dichotomique, en points de code, du plus long préfixe qui respecte le budget
+        int low = 0;
+        int high = value.codePointCount(0, value.length());
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (countTokens(value.substring(0, value.offsetByCodePoints(0, mid))) <= budget) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        String result = withMarker(value, low);
+        // Le découpage en tokens n'est pas strictement additif : on recule tant que le total dépasse
+        while (low > 0 && countTokens(result) > maxTokens) {
+            result = withMarker(value, --low);
+        }
+        return new Fitted(result, true, originalTokens, countTokens(result));
+    }
+
+    private static boolean logIfTruncated(String operation, String field, Fitted fitted) {
+        if (fitted.truncated()) {
+            log.debug("Prompt {} truncated for {}: {} -> {} tokens",
+                    field, operation, fitted.originalTokens(), fitted.fittedTokens());
+        }
+        return fitted.truncated();
+    }
+
+    private static String withMarker(String value, int codePoints) {
+        String prefix = value.substring(0, value.offsetByCodePoints(0, codePoints)).stripTrailing();
+        return prefix.isEmpty() ? TRUNCATION_MARKER.strip() : prefix + TRUNCATION_MARKER;
+    }
+
+    private int requireValidBudget(String name, int maxTokens) {
+        int minimum = countTokens(TRUNCATION_MARKER) + 1;
+        if (maxTokens < minimum) {
+            throw new IllegalArgumentException(
+                    "Token budget " + name + " must be at least " + minimum + " but was " + maxTokens);
+        }
+        return maxTokens;
+    }
+
+    private record Fitted(String text, boolean truncated, int originalTokens, int fittedTokens) {
+    }
+
+    /**
+     * Prompt prêt à l'envoi avec son estimation locale de tokens
+     */
+    public record CompiledPrompt(String operation, String system, String user,
+                                 int estimatedTokens, boolean truncated) {
+    }
+}
@@ -1,14 +1,13 @@
 package com.example.mcpserver.service;
 
+import com.example.mcpserver.service.PromptCompiler.CompiledPrompt;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-
 /**
  * Service d'analyse AI pour les tâches
  * Utilise Spring AI pour fournir des insights intelligents
@@ -19,6 +18,7 @@ import java.util.Map;
 public class TaskAiService {
 
     private final ChatClient.Builder chatClientBuilder;
+    private final PromptCompiler promptCompiler;
 
     /**
      * Analyse le sentiment d'une description de tâche
@@ -29,22 +29,12 @@ public class TaskAiService {
         }
 
         try {
-            String promptText = """
-                Analyze the sentiment of the following task description and respond with ONLY one word:
-                POSITIVE, NEGATIVE, or NEUTRAL.
-                
-                Task description: {description}
-                
-                Sentiment:
-                """;
-
-            PromptTemplate promptTemplate = new PromptTemplate(promptText);
-            Prompt prompt = promptTemplate.create(Map.of("description", taskDescription));
-
-            ChatClient chatClient = chatClientBuilder.build();
-            String response = chatClient.prompt(prompt)
-                    .call()
-                    .content();
+            CompiledPrompt prompt = promptCompiler.compile("sentiment", """
+                    Analyze the sentiment of the task description.
+                    Respond with ONLY one word: POSITIVE, NEGATIVE, or NEUTRAL.
+                    """, null, taskDescription);
+
+            String response = call(prompt);
 
             log.info("Sentiment analysis result: {}", response);
             return response.trim().toUpperCase();
@@ -59,31 +49,17 @@ public class TaskAiService {
      */
     public String suggestPriority(String title, String description) {
         try {
-            String promptText = """
-                Based on the following task information, suggest an appropriate priority level.
-                Respond with ONLY one of these words: LOW, MEDIUM, HIGH, or URGENT.
-                
-                Consider:
-                - Urgency keywords (urgent, asap, critical, immediately)
-                - Impact keywords (important, essential, critical, must)
-                - Time constraints mentioned
-                
-                Task title: {title}
-                Task description: {description}
-                
-                Suggested priority:
-                """;
-
-            PromptTemplate promptTemplate = new PromptTemplate(promptText);
-            Prompt prompt = promptTemplate.create(Map.of(
-                    "title", title != null ? title : "",
-                    "description", description != null ? description : ""
-            ));
-
-            ChatClient chatClient = chatClientBuilder.build();
-            String response = chatClient.prompt(prompt)
-                    .call()
-                    .content();
+            CompiledPrompt prompt = promptCompiler.compile("priority", """
+                    Suggest an appropriate priority level.
+                    Respond with ONLY one of these words: LOW, MEDIUM, HIGH, or URGENT.
+
+                    Consider:
+                    - Urgency keywords (urgent, asap, critical, immediately)
+                    - Impact keywords (important, essential, critical, must)
+                    - Time constraints mentioned
+                    """, title, description);
+
+            String response = call(prompt);
 
             log.info("Priority suggestion result: {}", response);
             return response.trim().toUpperCase();
@@ -98,26 +74,12 @@ public class TaskAiService {
      */
     public String generateTaskSummary(String title, String description) {
         try {
-            String promptText = """
-                Generate a concise one-sentence summary of this task, highlighting the key action and outcome.
-                Keep it under 100 characters.
-                
-                Task title: {title}
-                Task description: {description}
-                
-                Summary:
-                """;
-
-            PromptTemplate promptTemplate = new PromptTemplate(promptText);
-            Prompt prompt = promptTemplate.create(Map.of(
-                    "title", title != null ? title : "",
-                    "description", description != null ? description : ""
-            ));
-
-            ChatClient chatClient = chatClientBuilder.build();
-            String response = chatClient.prompt(prompt)
-                    .call()
-                    .content();
+            CompiledPrompt prompt = promptCompiler.compile("summary", """
+                    Generate a concise one-sentence summary of this task, highlighting the key action and outcome.
+                    Keep it under 100 characters.
+                    """, title, description);
+
+            String response = call(prompt);
 
             log.info("Generated task summary: {}", response);
             return response.trim();
@@ -132,27 +94,13 @@ public class TaskAiService {
      */
     public String suggestTags(String title, String description) {
         try {
-            String promptText = """
-                Based on the task information, suggest 2-4 relevant tags (keywords) that categorize this task.
-                Respond with comma-separated tags only, no explanation.
-                Examples: backend, frontend, bug, feature, documentation, testing
-                
-                Task title: {title}
-                Task description: {description}
-                
-                Tags:
-                """;
-
-            PromptTemplate promptTemplate = new PromptTemplate(promptText);
-            Prompt prompt = promptTemplate.create(Map.of(
-                    "title", title != null ? title : "",
-                    "description", description != null ? description : ""
-            ));
-
-            ChatClient chatClient = chatClientBuilder.build();
-            String response = chatClient.prompt(prompt)
-                    .call()
-                    .content();
+            CompiledPrompt prompt = promptCompiler.compile("tags", """
+                    Suggest 2-4 relevant tags (keywords) that categorize this task.
+                    Respond with comma-separated tags only.
+                    Examples: backend, frontend, bug, feature, documentation, testing
+                    """, title, description);
+
+            String response = call(prompt);
 
             log.info("Suggested tags: {}", response);
             return response.trim();
@@ -167,30 +115,14 @@ public class TaskAiService {
      */
     public String detectTaskRisks(String title, String description, String status, int daysOpen) {
         try {
-            String promptText = """
-                Analyze this task for potential risks or blockers.
-                Respond with a brief risk assessment (2-3 sentences) or "No significant risks detected".
-                
-                Task title: {title}
-                Description: {description}
-                Status: {status}
-                Days open: {daysOpen}
-                
-                Risk assessment:
-                """;
-
-            PromptTemplate promptTemplate = new PromptTemplate(promptText);
-            Prompt prompt = promptTemplate.create(Map.of(
-                    "title", title != null ? title : "",
-                    "description", description != null ? description : "",
-                    "status", status,
-                    "daysOpen", String.valueOf(daysOpen)
-            ));
-
-            ChatClient chatClient = chatClientBuilder.build();
-            String response = chatClient.prompt(prompt)
-                    .call()
-                    .content();
+            CompiledPrompt prompt = promptCompiler.compile("risks", """
+                    Analyze this task for potential risks or blockers.
+                    Respond with a brief risk assessment (2-3 sentences) or "No significant risks detected".
+                    """, title, description,
+                    "Status: " + status,
+                    "Days open: " + daysOpen);
+
+            String response = call(prompt);
 
             log.info("Risk assessment: {}", response);
             return response.trim();
@@ -199,4 +131,29 @@ public class TaskAiService {
             return "Unable to assess risks";
         }
     }
+
+    /**
+     * Envoie un prompt compilé au modèle et trace la consommation de tokens de l'appel
+     */
+    private String call(CompiledPrompt prompt) {
+        long start = System.nanoTime();
+        ChatResponse chatResponse = chatClientBuilder.build()
+                .prompt()
+                .system(prompt.system())
+                .user(prompt.user())
+                .call()
+                .chatResponse();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        Usage usage = chatResponse.getMetadata() != null ? chatResponse.getMetadata().getUsage() : null;
+        log.info("AI call [{}]: estimated input {} tokens{}, reported input {} / output {} tokens, {} ms",
+                prompt.operation(),
+                prompt.estimatedTokens(),
+                prompt.truncated() ? " (truncated)" : "",
+                usage != null ? usage.getPromptTokens() : "n/a",
+                usage != null ? usage.getGenerationTokens() : "n/a",
+                elapsedMs);
+
+        return chatResponse.getResult().getOutput().getText();
+    }
 }
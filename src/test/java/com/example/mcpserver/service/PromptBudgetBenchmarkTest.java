@@ -0,0 +1,257 @@
+package com.example.mcpserver.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compare, sur un corpus synthétique et un modèle factice, les tokens d'entrée des prompts d'origine
+ * (templates complets) et des prompts compilés sous budget, pour les cinq opérations de {@link TaskAiService}
+ * Benchmark de tokens uniquement : la latence d'un fournisseur réel n'est pas mesurée
+ * Exclu de la tâche test, à lancer avec ./gradlew benchmark
+ */
+@Tag("benchmark")
+class PromptBudgetBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PromptBudgetBenchmarkTest.class);
+
+    private static final List<String> OPERATIONS = List.of("sentiment", "priority", "summary", "tags", "risks");
+
+    private static final String LEGACY_SENTIMENT = """
+            Analyze the sentiment of the following task description and respond with ONLY one word:
+            POSITIVE, NEGATIVE, or NEUTRAL.
+
+            Task description: {description}
+
+            Sentiment:
+            """;
+    private static final String LEGACY_PRIORITY = """
+            Based on the following task information, suggest an appropriate priority level.
+            Respond with ONLY one of these words: LOW, MEDIUM, HIGH, or URGENT.
+
+            Consider:
+            - Urgency keywords (urgent, asap, critical, immediately)
+            - Impact keywords (important, essential, critical, must)
+            - Time constraints mentioned
+
+            Task title: {title}
+            Task description: {description}
+
+            Suggested priority:
+            """;
+    private static final String LEGACY_SUMMARY = """
+            Generate a concise one-sentence summary of this task, highlighting the key action and outcome.
+            Keep it under 100 characters.
+
+            Task title: {title}
+            Task description: {description}
+
+            Summary:
+            """;
+    private static final String LEGACY_TAGS = """
+            Based on the task information, suggest 2-4 relevant tags (keywords) that categorize this task.
+            Respond with comma-separated tags only, no explanation.
+            Examples: backend, frontend, bug, feature, documentation, testing
+
+            Task title: {title}
+            Task description: {description}
+
+            Tags:
+            """;
+    private static final String LEGACY_RISKS = """
+            Analyze this task for potential risks or blockers.
+            Respond with a brief risk assessment (2-3 sentences) or "No significant risks detected".
+
+            Task title: {title}
+            Description: {description}
+            Status: {status}
+            Days open: {daysOpen}
+
+            Risk assessment:
+            """;
+
+    private static final String[] SENTENCES = {
+            "The checkout page times out for some customers when they pay with a saved card.",
+            "We need to reproduce the issue on staging before touching the payment gateway.",
+            "Check the application logs from last night and attach the relevant stack traces.",
+            "The release is planned for Friday, so this must be done by Thursday at the latest.",
+            "Update the documentation once the new endpoint is merged and deployed.",
+            "This is blocked until the database team finishes the schema migration.",
+            "Add unit tests for the edge cases we found during the last code review.",
+            "Customers reported that exported invoices show the wrong currency symbol.",
+            "Coordinate with the frontend team because the API response format changes.",
+            "Keep the old behaviour behind a feature flag until the audit is complete."
+    };
+
+    private static final String[] WORDS = {
+            "urgent", "migrate", "database", "schema", "invoice", "customer", "login", "release", "deadline",
+            "refactor", "legacy", "module", "API", "endpoint", "timeout", "cache", "report", "deploy", "review",
+            "blocked", "waiting", "security", "audit", "critical", "frontend", "backend", "tests", "documentation"
+    };
+
+    @Test
+    void compiledPromptsUseFewerTokensThanLegacyPrompts() {
+        List<SyntheticTask> corpus = syntheticCorpus(40);
+
+        StubChatModel legacyModel = new StubChatModel();
+        ChatClient legacyClient = ChatClient.builder(legacyModel).build();
+        List<Measure> legacy = run(corpus, legacyModel, List.of(
+                task -> callLegacy(legacyClient, LEGACY_SENTIMENT, Map.of("description", task.description())),
+                task -> callLegacy(legacyClient, LEGACY_PRIORITY,
+                        Map.of("title", task.title(), "description", task.description())),
+                task -> callLegacy(legacyClient, LEGACY_SUMMARY,
+                        Map.of("title", task.title(), "description", task.description())),
+                task -> callLegacy(legacyClient, LEGACY_TAGS,
+                        Map.of("title", task.title(), "description", task.description())),
+                task -> callLegacy(legacyClient, LEGACY_RISKS, Map.of("title", task.title(), "description", task.description(),
+                        "status", task.status(), "daysOpen", String.valueOf(task.daysOpen())))));
+
+        StubChatModel compiledModel = new StubChatModel();
+        TaskAiService service = TaskAiServiceTest.newService(compiledModel, new PromptCompiler(32, 128));
+        List<Measure> compiled = run(corpus, compiledModel, List.of(
+                task -> service.analyzeSentiment(task.description()),
+                task -> service.suggestPriority(task.title(), task.description()),
+                task -> service.generateTaskSummary(task.title(), task.description()),
+                task -> service.suggestTags(task.title(), task.description()),
+                task -> service.detectTaskRisks(task.title(), task.description(), task.status(), task.daysOpen())));
+
+        report(corpus, legacy, compiled, new PromptCompiler(32, 128));
+
+        assertThat(legacyModel.getInputTokensPerCall()).hasSize(corpus.size() * OPERATIONS.size());
+        assertThat(compiledModel.getInputTokensPerCall()).hasSize(corpus.size() * OPERATIONS.size());
+        long legacyTokens = legacy.stream().mapToLong(Measure::inputTokens).sum();
+        long compiledTokens = compiled.stream().mapToLong(Measure::inputTokens).sum();
+        assertThat(compiledTokens).isLessThan(legacyTokens);
+    }
+
+    private static void callLegacy(ChatClient chatClient, String template, Map<String, Object> model) {
+        Prompt prompt = new PromptTemplate(template).create(model);
+        chatClient.prompt(prompt).call().content();
+    }
+
+    /**
+     * Exécute les cinq opérations sur chaque tâche et relève les tokens d'entrée comptés par le modèle
+     */
+    private static List<Measure> run(List<SyntheticTask> corpus, StubChatModel chatModel,
+                                     List<Consumer<SyntheticTask>> operations) {
+        List<Measure> measures = new ArrayList<>();
+        for (SyntheticTask task : corpus) {
+            for (int i = 0; i < operations.size(); i++) {
+                operations.get(i).accept(task);
+                List<Integer> tokens = chatModel.getInputTokensPerCall();
+                measures.add(new Measure(task.id(), OPERATIONS.get(i), tokens.get(tokens.size() - 1)));
+            }
+        }
+        return measures;
+    }
+
+    private static void report(List<SyntheticTask> corpus, List<Measure> legacy, List<Measure> compiled,
+                               PromptCompiler compiler) {
+        Map<String, long[]> byOperation = new LinkedHashMap<>();
+        for (int i = 0; i < legacy.size(); i++) {
+            Measure before = legacy.get(i);
+            Measure after = compiled.get(i);
+            log.debug("Task #{} ({} chars) {}: {} -> {} input tokens",
+                    before.taskId(), corpus.get(before.taskId()).description().length(), before.operation(),
+                    before.inputTokens(), after.inputTokens());
+
+            long[] totals = byOperation.computeIfAbsent(before.operation(), key -> new long[3]);
+            totals[0] += before.inputTokens();
+            totals[1] += after.inputTokens();
+            totals[2]++;
+        }
+        byOperation.forEach((operation, totals) -> log.info("{}: {} -> {} input tokens per call on average",
+                operation, String.format("%.1f", (double) totals[0] / totals[2]),
+                String.format("%.1f", (double) totals[1] / totals[2])));
+
+        long legacyTokens = legacy.stream().mapToLong(Measure::inputTokens).sum();
+        long compiledTokens = compiled.stream().mapToLong(Measure::inputTokens).sum();
+        log.info("Total over {} calls: {} -> {} input tokens ({}% saved)",
+                legacy.size(), legacyTokens, compiledTokens,
+                String.format("%.1f", 100.0 * (legacyTokens - compiledTokens) / legacyTokens));
+
+        // Sous-ensemble où la troncature s'applique : descriptions au-delà du budget par défaut
+        long legacyOverBudget = 0;
+        long compiledOverBudget = 0;
+        int callsOverBudget = 0;
+        for (int i = 0; i < legacy.size(); i++) {
+            if (compiler.countTokens(corpus.get(legacy.get(i).taskId()).description()) > 128) {
+                legacyOverBudget += legacy.get(i).inputTokens();
+                compiledOverBudget += compiled.get(i).inputTokens();
+                callsOverBudget++;
+            }
+        }
+        if (callsOverBudget > 0) {
+            log.info("Descriptions over budget, {} calls: {} -> {} input tokens ({}% saved)",
+                    callsOverBudget, legacyOverBudget, compiledOverBudget,
+                    String.format("%.1f", 100.0 * (legacyOverBudget - compiledOverBudget) / legacyOverBudget));
+        }
+    }
+
+    /**
+     * Corpus déterministe : descriptions rédigées de 20 caractères jusqu'à la limite de 1000 caractères de Task
+     */
+    private static List<SyntheticTask> syntheticCorpus(int size) {
+        Random random = new Random(42);
+        String[] statuses = {"TODO", "IN_PROGRESS", "DONE", "CANCELLED"};
+        List<SyntheticTask> corpus = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            int descriptionLength = 20 + (980 * id) / (size - 1);
+            corpus.add(new SyntheticTask(id,
+                    capitalize(words(random, 3 + random.nextInt(6), 120)),
+                    sentences(random, descriptionLength),
+                    statuses[random.nextInt(statuses.length)],
+                    random.nextInt(60)));
+        }
+        return corpus;
+    }
+
+    private static String words(Random random, int maxWords, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        for (int count = 0; count < maxWords; count++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (text.length() + word.length() + 1 > maxLength) {
+                break;
+            }
+            if (!text.isEmpty()) {
+                text.append(' ');
+            }
+            text.append(word);
+        }
+        return text.toString();
+    }
+
+    private static String sentences(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            if (!text.isEmpty()) {
+                text.append(' ');
+            }
+            text.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+        }
+        return text.substring(0, length).strip();
+    }
+
+    private static String capitalize(String text) {
+        return text.isEmpty() ? text : Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    private record SyntheticTask(int id, String title, String description, String status, int daysOpen) {
+    }
+
+    private record Measure(int taskId, String operation, int inputTokens) {
+    }
+}
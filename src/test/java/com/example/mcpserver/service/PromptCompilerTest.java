@@ -0,0 +1,97 @@
+package com.example.mcpserver.service;
+
+import com.example.mcpserver.service.PromptCompiler.CompiledPrompt;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PromptCompilerTest {
+
+    private static final String LONG_TEXT = "Refactor the billing module and migrate every invoice to the new schema. ".repeat(40);
+
+    private final PromptCompiler compiler = new PromptCompiler(32, 200);
+
+    @Test
+    void keepsTextWithinBudgetUnchanged() {
+        assertThat(compiler.fitToBudget("Fix login bug", 10)).isEqualTo("Fix login bug");
+    }
+
+    @Test
+    void truncatesTextToBudgetIncludingMarker() {
+        for (int budget : List.of(5, 10, 50, 200)) {
+            String fitted = compiler.fitToBudget(LONG_TEXT, budget);
+
+            assertThat(compiler.countTokens(fitted)).isLessThanOrEqualTo(budget);
+            assertThat(fitted).endsWith(PromptCompiler.TRUNCATION_MARKER);
+            assertThat(LONG_TEXT).startsWith(fitted.substring(0, fitted.length() - PromptCompiler.TRUNCATION_MARKER.length()));
+        }
+    }
+
+    @Test
+    void smallestBudgetKeepsContent() {
+        int minimum = compiler.countTokens(PromptCompiler.TRUNCATION_MARKER) + 1;
+
+        String fitted = compiler.fitToBudget(LONG_TEXT, minimum);
+
+        assertThat(compiler.countTokens(fitted)).isLessThanOrEqualTo(minimum);
+        assertThat(fitted).endsWith(PromptCompiler.TRUNCATION_MARKER);
+        String content = fitted.substring(0, fitted.length() - PromptCompiler.TRUNCATION_MARKER.length());
+        assertThat(content).isNotBlank();
+        assertThat(LONG_TEXT).startsWith(content);
+    }
+
+    @Test
+    void rejectsBudgetsWithoutRoomForContent() {
+        int markerTokens = compiler.countTokens(PromptCompiler.TRUNCATION_MARKER);
+
+        assertThatThrownBy(() -> new PromptCompiler(0, 200)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PromptCompiler(32, markerTokens)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> compiler.fitToBudget(LONG_TEXT, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void neverSplitsSurrogatePairs() {
+        String emojis = "🚀🔥✅🐛".repeat(200);
+
+        for (int budget = 5; budget < 40; budget++) {
+            String fitted = compiler.fitToBudget(emojis, budget);
+            for (int i = 0; i < fitted.length(); i++) {
+                char c = fitted.charAt(i);
+                if (Character.isHighSurrogate(c)) {
+                    assertThat(Character.isLowSurrogate(fitted.charAt(i + 1))).isTrue();
+                    i++;
+                } else {
+                    assertThat(Character.isLowSurrogate(c)).isFalse();
+                }
+            }
+        }
+    }
+
+    @Test
+    void flagsTruncationOnlyWhenContentIsCut() {
+        assertThat(compiler.compile("tags", "Tags:", "  Fix login  ", "\n Users cannot log in \n").truncated()).isFalse();
+        assertThat(compiler.compile("tags", "Tags:", "Fix login", LONG_TEXT).truncated()).isTrue();
+        assertThat(compiler.compile("tags", "Tags:", LONG_TEXT, "Short").truncated()).isTrue();
+    }
+
+    @Test
+    void omitsTitleLineWhenTitleIsMissing() {
+        assertThat(compiler.compile("sentiment", "Sentiment:", null, "Users cannot log in").user())
+                .doesNotContain("Task title:");
+        assertThat(compiler.compile("sentiment", "Sentiment:", "  ", "Users cannot log in").user())
+                .doesNotContain("Task title:");
+        assertThat(compiler.compile("summary", "Summary:", "Fix login", "Users cannot log in").user())
+                .startsWith("Task title: Fix login\n");
+    }
+
+    @Test
+    void estimatesSystemAndUserTokens() {
+        CompiledPrompt prompt = compiler.compile("summary", "Summary:", "Fix login", LONG_TEXT);
+
+        assertThat(prompt.estimatedTokens())
+                .isEqualTo(compiler.countTokens(prompt.system()) + compiler.countTokens(prompt.user()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.mcpserver.service;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modèle factice : compte les tokens des messages reçus et renvoie une réponse fixe avec un usage cohérent
+ * Le comptage utilise le même tokenizer que {@link PromptCompiler}, il ne reflète pas la facturation d'un fournisseur
+ */
+class StubChatModel implements ChatModel {
+
+    static final String RESPONSE = "MEDIUM";
+    static final long OUTPUT_TOKENS = 1;
+
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+    private final List<Integer> inputTokensPerCall = new ArrayList<>();
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        int inputTokens = 0;
+        for (Message message : prompt.getInstructions()) {
+            String text = message.getText();
+            if (text != null && !text.isEmpty()) {
+                inputTokens += tokenCountEstimator.estimate(text);
+            }
+        }
+        inputTokensPerCall.add(inputTokens);
+
+        return new ChatResponse(
+                List.of(new Generation(new AssistantMessage(RESPONSE))),
+                ChatResponseMetadata.builder().usage(new DefaultUsage((long) inputTokens, OUTPUT_TOKENS)).build());
+    }
+
+    List<Integer> getInputTokensPerCall() {
+        return inputTokensPerCall;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.mcpserver.service;
+
+import com.example.mcpserver.service.PromptCompiler.CompiledPrompt;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskAiServiceTest {
+
+    private static final String TITLE = "Fix login";
+    private static final String DESCRIPTION = "Users cannot log in since the last release";
+
+    private final StubChatModel chatModel = new StubChatModel();
+    private final RecordingPromptCompiler promptCompiler = new RecordingPromptCompiler();
+    private final TaskAiService taskAiService = newService(chatModel, promptCompiler);
+
+    static TaskAiService newService(StubChatModel chatModel, PromptCompiler promptCompiler) {
+        return new TaskAiService(ChatClient.builder(chatModel), promptCompiler);
+    }
+
+    @Test
+    void returnsModelResponse() {
+        assertThat(taskAiService.suggestPriority(TITLE, DESCRIPTION)).isEqualTo(StubChatModel.RESPONSE);
+        assertThat(chatModel.getInputTokensPerCall()).hasSize(1);
+    }
+
+    @Test
+    void sharesSystemInstructionsAcrossAllOperations() {
+        callAllOperations(TITLE, DESCRIPTION);
+
+        List<CompiledPrompt> prompts = promptCompiler.prompts;
+        assertThat(prompts).extracting(CompiledPrompt::operation)
+                .containsExactly("sentiment", "priority", "summary", "tags", "risks");
+        assertThat(prompts).allMatch(prompt -> prompt.system().equals(PromptCompiler.SHARED_INSTRUCTIONS));
+
+        String taskContext = "Task description: " + DESCRIPTION + "\n";
+        assertThat(prompts.get(0).user()).startsWith(taskContext);
+        prompts.subList(1, prompts.size())
+                .forEach(prompt -> assertThat(prompt.user()).startsWith("Task title: " + TITLE + "\n" + taskContext));
+    }
+
+    /**
+     * Vérifie que le modèle reçoit exactement le prompt compilé (système + utilisateur, rien d'ajouté par ChatClient)
+     * Le modèle factice compte avec le même tokenizer : ce test ne dit rien de la facturation réelle du fournisseur
+     */
+    @Test
+    void modelReceivesExactlyTheCompiledPrompt() {
+        callAllOperations("Billing migration", "Migrate every invoice to the new schema before the audit. ".repeat(20));
+
+        List<CompiledPrompt> prompts = promptCompiler.prompts;
+        assertThat(prompts).hasSize(5).allMatch(CompiledPrompt::truncated);
+        assertThat(chatModel.getInputTokensPerCall())
+                .containsExactlyElementsOf(prompts.stream().map(CompiledPrompt::estimatedTokens).toList());
+    }
+
+    private void callAllOperations(String title, String description) {
+        taskAiService.analyzeSentiment(description);
+        taskAiService.suggestPriority(title, description);
+        taskAiService.generateTaskSummary(title, description);
+        taskAiService.suggestTags(title, description);
+        taskAiService.detectTaskRisks(title, description, "IN_PROGRESS", 12);
+    }
+
+    private static class RecordingPromptCompiler extends PromptCompiler {
+
+        private final List<CompiledPrompt> prompts = new ArrayList<>();
+
+        RecordingPromptCompiler() {
+            super(32, 128);
+        }
+
+        @Override
+        public CompiledPrompt compile(String operation, String instruction,
+                                      String title, String description, String... extraLines) {
+            CompiledPrompt prompt = super.compile(operation, instruction, title, description, extraLines);
+            prompts.add(prompt);
+            return prompt;
+        }
+    }
+}